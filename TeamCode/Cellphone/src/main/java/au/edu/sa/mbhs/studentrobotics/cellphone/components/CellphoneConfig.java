@@ -1,7 +1,5 @@
 package au.edu.sa.mbhs.studentrobotics.cellphone.components;
 
-import static au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Units.Seconds;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -15,7 +13,6 @@ import com.acmerobotics.roadrunner.Pose2dDual;
 import com.acmerobotics.roadrunner.PoseVelocity2d;
 import com.acmerobotics.roadrunner.ProfileAccelConstraint;
 import com.acmerobotics.roadrunner.ProfileParams;
-import com.acmerobotics.roadrunner.Rotation2d;
 import com.acmerobotics.roadrunner.Time;
 import com.acmerobotics.roadrunner.TimeTrajectory;
 import com.acmerobotics.roadrunner.TimeTurn;
@@ -30,7 +27,6 @@ import com.qualcomm.robotcore.hardware.DcMotorImplEx;
 import com.qualcomm.robotcore.hardware.PIDCoefficients;
 import com.qualcomm.robotcore.hardware.PIDFCoefficients;
 import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.ClassFactory;
 import org.firstinspires.ftc.robotcore.external.hardware.camera.BuiltinCameraDirection;
@@ -72,42 +68,77 @@ public class CellphoneConfig extends RobotConfig {
      * Dummy drive, not a real drive
      */
     public RoadRunnerDrive dummyDrive;
+    /**
+     * Time source of the dummy devices, not a real device
+     */
+    public final SimClock clock = new SimClock();
 
     @Override
     protected void onRuntime() {
         cameraB = ClassFactory.getInstance().getCameraManager().nameFromCameraDirection(BuiltinCameraDirection.BACK);
         cameraF = ClassFactory.getInstance().getCameraManager().nameFromCameraDirection(BuiltinCameraDirection.FRONT);
 
-        DummyMotor m = new DummyMotor();
+        DummyMotor m = new DummyMotor(clock);
         dummyMotor = new Motor(new DcMotorImplEx(m, -1));
 
-        dummyDrive = new DummyHDrive();
+        dummyDrive = new DummyHDrive(clock);
 
-        BunyipsOpMode.ifRunning(o -> o.onActiveLoop(m::update));
+        BunyipsOpMode.ifRunning(o -> o.onActiveLoop(() -> {
+            clock.step();
+            m.update();
+        }));
     }
 
 
     private static class DummyHDrive implements RoadRunnerDrive {
+        private static final double MAX_VEL = 30;
+        private static final double MAX_ANG_VEL = 3;
+        private static final double MAX_ANG_ACCEL = 3;
+        private static final double MAX_ACCEL = 30;
+
+        private final SimClock clock;
         private PoseVelocity2d target = Geometry.zeroVel();
 
         private Localizer localizer = new Localizer() {
-            private Rotation2d lastHeading;
+            private double lastTime = Double.NaN;
+            private double vx, vy, omega;
+
             @NonNull
             @Override
             public Twist2dDual<Time> update() {
-                lastHeading = accumulator.getPose().heading;
+                double now = clock.seconds();
+                double dt = Double.isNaN(lastTime) ? 0 : now - lastTime;
+                lastTime = now;
+                if (clock.isVirtual()) {
+                    // Robot-relative velocities are limited by the same constraints the drive is profiled with
+                    vx = Mathf.moveTowards(vx, target.linearVel.x * MAX_VEL, MAX_ACCEL * dt);
+                    vy = Mathf.moveTowards(vy, target.linearVel.y * MAX_VEL, MAX_ACCEL * dt);
+                    omega = Mathf.moveTowards(omega, target.angVel * MAX_ANG_VEL, MAX_ANG_ACCEL * dt);
+                } else {
+                    // Respond instantly on wall-clock time, as CellphoneTestAuto and the TeleOps were tuned against
+                    vx = target.linearVel.x * MAX_VEL;
+                    vy = target.linearVel.y * MAX_VEL;
+                    omega = target.angVel * MAX_ANG_VEL;
+                }
                 return new Twist2dDual<>(
-                        Vector2dDual.constant(target.linearVel.times(30 * BunyipsOpMode.getInstance().timer.deltaTime().in(Seconds)), 2),
-                        DualNum.constant(accumulator.getPose().heading.minus(lastHeading) + target.angVel * 3 * BunyipsOpMode.getInstance().timer.deltaTime().in(Seconds), 2)
+                        new Vector2dDual<>(
+                                new DualNum<>(Arrays.asList(vx * dt, vx)),
+                                new DualNum<>(Arrays.asList(vy * dt, vy))
+                        ),
+                        new DualNum<>(Arrays.asList(omega * dt, omega))
                 );
             }
         };
 
         private Accumulator accumulator = new Accumulator();
 
+        DummyHDrive(SimClock clock) {
+            this.clock = clock;
+        }
+
         private class Turn implements Action {
             private final TimeTurn t;
-            private ElapsedTime timer;
+            private double start = Double.NaN;
 
             public Turn(TimeTurn timeTurn) {
                 t = timeTurn;
@@ -115,11 +146,12 @@ public class CellphoneConfig extends RobotConfig {
 
             @Override
             public boolean run(@NonNull TelemetryPacket telemetryPacket) {
-                if (timer == null)
-                    timer = new ElapsedTime();
-                if (timer.seconds() >= t.duration)
+                if (Double.isNaN(start))
+                    start = clock.seconds();
+                double elapsed = clock.seconds() - start;
+                if (elapsed >= t.duration)
                     return false;
-                Pose2dDual<Time> txWorldTarget = t.get(timer.seconds());
+                Pose2dDual<Time> txWorldTarget = t.get(elapsed);
                 setPose(txWorldTarget.value());
                 periodic();
                 return true;
@@ -128,7 +160,7 @@ public class CellphoneConfig extends RobotConfig {
 
         private class Trajectory implements Action {
             private final TimeTrajectory t;
-            private ElapsedTime timer;
+            private double start = Double.NaN;
 
             public Trajectory(TimeTrajectory timeTrajectory) {
                 t = timeTrajectory;
@@ -136,11 +168,12 @@ public class CellphoneConfig extends RobotConfig {
 
             @Override
             public boolean run(@NonNull TelemetryPacket telemetryPacket) {
-                if (timer == null)
-                    timer = new ElapsedTime();
-                if (timer.seconds() >= t.duration)
+                if (Double.isNaN(start))
+                    start = clock.seconds();
+                double elapsed = clock.seconds() - start;
+                if (elapsed >= t.duration)
                     return false;
-                Pose2dDual<Time> txWorldTarget = t.get(timer.seconds());
+                Pose2dDual<Time> txWorldTarget = t.get(elapsed);
                 setPose(txWorldTarget.value());
                 periodic();
                 return true;
@@ -162,9 +195,9 @@ public class CellphoneConfig extends RobotConfig {
                             )
                     ),
                     0,
-                    new TurnConstraints(3, -3, 3),
-                    new MinVelConstraint(Arrays.asList(new TranslationalVelConstraint(30), new AngularVelConstraint(3))),
-                    new ProfileAccelConstraint(-30, 30)
+                    new TurnConstraints(MAX_ANG_VEL, -MAX_ANG_ACCEL, MAX_ANG_ACCEL),
+                    new MinVelConstraint(Arrays.asList(new TranslationalVelConstraint(MAX_VEL), new AngularVelConstraint(MAX_ANG_VEL))),
+                    new ProfileAccelConstraint(-MAX_ACCEL, MAX_ACCEL)
             );
         }
 
@@ -224,7 +257,7 @@ public class CellphoneConfig extends RobotConfig {
 
     @SuppressWarnings({"all", "deprecation"})
     private static class DummyMotor implements DcMotorControllerEx {
-        private final ElapsedTime timer = new ElapsedTime();
+        private final SimClock clock;
         private final int TPS = 600;
         private final int ACCEL = 1200;
         private double power;
@@ -233,12 +266,25 @@ public class CellphoneConfig extends RobotConfig {
         private MotorConfigurationType conf = MotorConfigurationType.getUnspecifiedMotorType();
         private DcMotor.RunMode mode;
         private double velo;
+        private double lastUpdate;
+
+        DummyMotor(SimClock clock) {
+            this.clock = clock;
+            lastUpdate = clock.seconds();
+        }
+
+        private double deltaTime() {
+            double now = clock.seconds();
+            double dt = now - lastUpdate;
+            lastUpdate = now;
+            return dt;
+        }
 
         public void update() {
             // update this dummy motor by feeding power into pos, delta time approach
-            velo = Mathf.moveTowards(velo, power * TPS, ACCEL * timer.seconds());
-            pos += velo * timer.seconds();
-            timer.reset();
+            double dt = deltaTime();
+            velo = Mathf.moveTowards(velo, power * TPS, ACCEL * dt);
+            pos += velo * dt;
         }
 
         @Override
@@ -357,8 +403,7 @@ public class CellphoneConfig extends RobotConfig {
 
         @Override
         public void setMotorVelocity(int motor, double ticksPerSecond) {
-            pos += ticksPerSecond * timer.seconds();
-            timer.reset();
+            pos += ticksPerSecond * deltaTime();
         }
 
         @Override
@@ -0,0 +1,46 @@
+package au.edu.sa.mbhs.studentrobotics.cellphone.components;
+
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+/**
+ * Time source for the simulated devices of the Cellphone.
+ * <p>
+ * By default this clock follows wall-clock time. When {@link #TIME_STEP} is set, time instead only advances by a fixed
+ * amount every {@link #step()}, which makes the simulated devices deterministic between runs.
+ * <p>
+ * The Cellphone steps this clock once per active loop, so virtual time only covers the simulated devices. OpMode
+ * timers and task timeouts still run on wall-clock time, and will drift from the devices when the loop period is not
+ * equal to {@link #TIME_STEP}. The dummy drive also only applies its acceleration limits on virtual time, and responds
+ * instantly on wall-clock time.
+ */
+public class SimClock {
+    /**
+     * Seconds of virtual time to advance every step, or 0 to follow wall-clock time.
+     */
+    public static double TIME_STEP = 0;
+
+    private final ElapsedTime wall = new ElapsedTime();
+    private double virtualSeconds;
+
+    /**
+     * @return whether this clock is running on virtual time
+     */
+    public boolean isVirtual() {
+        return TIME_STEP > 0;
+    }
+
+    /**
+     * Advance virtual time by {@link #TIME_STEP}. No-op when following wall-clock time.
+     */
+    public void step() {
+        if (isVirtual())
+            virtualSeconds += TIME_STEP;
+    }
+
+    /**
+     * @return seconds elapsed on this clock since it was created
+     */
+    public double seconds() {
+        return isVirtual() ? virtualSeconds : wall.seconds();
+    }
+}
@@ -20,12 +20,12 @@ import org.firstinspires.ftc.vision.apriltag.AprilTagMetadata;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.BunyipsOpMode;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.Localizer;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.accumulators.Accumulator;
-import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.accumulators.AprilTagRelocalizingAccumulator;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.util.Dashboard;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.util.Geometry;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.vision.Vision;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.vision.processors.AprilTag;
 import au.edu.sa.mbhs.studentrobotics.cellphone.components.CellphoneConfig;
+import au.edu.sa.mbhs.studentrobotics.common.localization.AprilTagHistoryAccumulator;
 
 /**
  * test for AprilTagPoseEstimator sanity checking
@@ -38,8 +38,9 @@ public class CellphoneAprilTagTest extends BunyipsOpMode {
         @NonNull
         @Override
         public Twist2dDual<Time> update() {
-            return new Twist2dDual<>(Vector2dDual.constant(new Vector2d(-gamepad1.lsy * 24 * timer.deltaTime().in(Second), -gamepad1.lsx * 24 * timer.deltaTime().in(Second)), 2),
-                    DualNum.constant(-gamepad1.rsx * 3.14 * timer.deltaTime().in(Second), 2));
+            double dt = timer.deltaTime().in(Second);
+            return new Twist2dDual<>(Vector2dDual.constant(new Vector2d(-gamepad1.lsy * 24 * dt, -gamepad1.lsx * 24 * dt), 2),
+                    DualNum.constant(-gamepad1.rsx * 3.14 * dt, 2));
         }
     };
 //    private final Localizer l = new NullLocalizer();
@@ -62,7 +63,7 @@ public class CellphoneAprilTagTest extends BunyipsOpMode {
         });
         vision.init(aprilTag).start(aprilTag);
         vision.startPreview();
-        a = new AprilTagRelocalizingAccumulator(aprilTag);
+        a = new AprilTagHistoryAccumulator(aprilTag);
     }
 
     @Override
@@ -0,0 +1,256 @@
+package au.edu.sa.mbhs.studentrobotics.common.diagnostics;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.NonNull;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerImpl;
+import com.qualcomm.robotcore.eventloop.opmode.OpModeManagerNotifier;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.BunyipsOpMode;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.Dbg;
+
+/**
+ * Low-overhead loop time profiler for a {@link BunyipsOpMode}.
+ * <p>
+ * Timings are recorded in nanoseconds into preallocated fixed-width histograms, so recording a sample is a few
+ * array writes with no allocation. The full active loop period is always recorded as the first section, and other
+ * sections such as hooks, subsystem updates and tasks can be timed by wrapping them with {@link #wrap(String, Runnable)}
+ * or by calling {@link #start()} and {@link #stop(int, long)} around the code to measure.
+ * <p>
+ * The p50, p95, p99 and worst case of every section are periodically summarised to telemetry. When the OpMode
+ * stops, the summary is automatically written to a CSV file in {@link #ROOT}, and can also be written manually
+ * with {@link #writeReport(File)}.
+ */
+public class LoopProfiler {
+    /**
+     * Width of each histogram bucket in nanoseconds, which is the resolution of the reported percentiles.
+     */
+    public static final long BUCKET_WIDTH_NS = 10_000;
+    /**
+     * Number of histogram buckets. Samples longer than {@code BUCKET_WIDTH_NS * BUCKETS} are counted in the last
+     * bucket, but are still reflected in the worst case.
+     */
+    public static final int BUCKETS = 10_000;
+    /**
+     * Milliseconds between updates of the telemetry summary.
+     */
+    public static int REPORT_INTERVAL_MS = 1000;
+    /**
+     * Directory that reports are automatically written to when the OpMode stops.
+     */
+    public static final File ROOT = new File(AppUtil.ROOT_FOLDER + "/LoopProfiler/");
+
+    private final List<String> names = new ArrayList<>();
+    private int[][] histograms = new int[0][];
+    private long[] counts = new long[0];
+    private long[] totals = new long[0];
+    private long[] worst = new long[0];
+
+    private final int loopSection;
+    private long lastLoop;
+    private long lastReport;
+    private String[] summary = new String[0];
+    // OpMode manager only stores a weak reference to listeners, so we need to keep this alive ourselves
+    private final OpModeManagerNotifier.Notifications stopHook = new OpModeManagerNotifier.Notifications() {
+        @Override
+        public void onOpModePreInit(OpMode opMode) {
+            // no-op
+        }
+
+        @Override
+        public void onOpModePreStart(OpMode opMode) {
+            // no-op
+        }
+
+        @Override
+        public void onOpModePostStop(OpMode opMode) {
+            OpModeManagerImpl.getOpModeManagerOfActivity(AppUtil.getInstance().getActivity()).unregisterListener(this);
+            @SuppressLint("SimpleDateFormat")
+            String time = new SimpleDateFormat("yyyy_MM_dd__HH_mm_ss").format(new Date());
+            File file = new File(ROOT, opMode.getClass().getSimpleName() + "__" + time + ".csv");
+            try {
+                //noinspection ResultOfMethodCallIgnored
+                ROOT.mkdirs();
+                writeReport(file);
+                Dbg.logd(LoopProfiler.class, "Loop profile written to %.", file.getAbsolutePath());
+            } catch (IOException e) {
+                Dbg.error("Failed to write loop profile to %: %", file.getAbsolutePath(), e.getMessage());
+            }
+        }
+    };
+
+    /**
+     * Create a new profiler, which will auto-attach to the active loop of the running {@link BunyipsOpMode}
+     * to record the loop period and display the summary on telemetry. A report is written to {@link #ROOT}
+     * once the OpMode that created this profiler stops.
+     */
+    public LoopProfiler() {
+        loopSection = section("Loop");
+        BunyipsOpMode.ifRunning(opMode -> {
+            opMode.onActiveLoop(() -> {
+                long now = System.nanoTime();
+                if (lastLoop != 0)
+                    record(loopSection, now - lastLoop);
+                lastLoop = now;
+
+                if (now - lastReport >= REPORT_INTERVAL_MS * 1_000_000L) {
+                    summary = summarise();
+                    lastReport = now;
+                }
+                for (String line : summary) {
+                    opMode.telemetry.add(line);
+                }
+            });
+            Dbg.logd(getClass(), "Loop profiler has been auto-attached to BunyipsOpMode.");
+        });
+        OpModeManagerImpl.getOpModeManagerOfActivity(AppUtil.getInstance().getActivity()).registerListener(stopHook);
+    }
+
+    /**
+     * Register a new section to record timings for. Sections should be registered during initialisation,
+     * as registering allocates new histograms.
+     *
+     * @param name the name of the section to display in reports
+     * @return the id of the section, to be used in {@link #stop(int, long)} and {@link #record(int, long)}
+     */
+    public int section(@NonNull String name) {
+        int id = names.size();
+        names.add(name);
+        histograms = Arrays.copyOf(histograms, id + 1);
+        histograms[id] = new int[BUCKETS];
+        counts = Arrays.copyOf(counts, id + 1);
+        totals = Arrays.copyOf(totals, id + 1);
+        worst = Arrays.copyOf(worst, id + 1);
+        return id;
+    }
+
+    /**
+     * Wrap a runnable to record the time it takes in a new section.
+     * Useful for timing hooks passed to {@link BunyipsOpMode#onActiveLoop}.
+     *
+     * @param name     the name of the section
+     * @param runnable the runnable to time
+     * @return a runnable that runs and times the original runnable
+     */
+    @NonNull
+    public Runnable wrap(@NonNull String name, @NonNull Runnable runnable) {
+        int id = section(name);
+        return () -> {
+            long start = System.nanoTime();
+            runnable.run();
+            record(id, System.nanoTime() - start);
+        };
+    }
+
+    /**
+     * Start timing a section.
+     *
+     * @return the start timestamp to pass to {@link #stop(int, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Stop timing a section and record the elapsed time.
+     *
+     * @param section the section id from {@link #section(String)}
+     * @param start   the timestamp returned from {@link #start()}
+     */
+    public void stop(int section, long start) {
+        record(section, System.nanoTime() - start);
+    }
+
+    /**
+     * Record a timing for a section.
+     *
+     * @param section the section id from {@link #section(String)}
+     * @param nanos   the elapsed time in nanoseconds
+     */
+    public void record(int section, long nanos) {
+        int bucket = (int) Math.min(nanos / BUCKET_WIDTH_NS, BUCKETS - 1);
+        histograms[section][bucket]++;
+        counts[section]++;
+        totals[section] += nanos;
+        if (nanos > worst[section])
+            worst[section] = nanos;
+    }
+
+    /**
+     * Estimate a percentile of the recorded timings of a section.
+     *
+     * @param section    the section id from {@link #section(String)}
+     * @param percentile the percentile to calculate, between 0 and 1
+     * @return the upper bound of the histogram bucket containing the percentile, in nanoseconds
+     */
+    public long percentile(int section, double percentile) {
+        long target = (long) Math.ceil(percentile * counts[section]);
+        long seen = 0;
+        int[] histogram = histograms[section];
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += histogram[i];
+            if (seen >= target && seen > 0)
+                return Math.min((i + 1) * BUCKET_WIDTH_NS, worst[section]);
+        }
+        return worst[section];
+    }
+
+    /**
+     * Clear all recorded timings, keeping the registered sections.
+     */
+    public void reset() {
+        for (int[] histogram : histograms) {
+            Arrays.fill(histogram, 0);
+        }
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+        Arrays.fill(worst, 0);
+        lastLoop = 0;
+    }
+
+    /**
+     * Write the summary of all sections to a CSV file, with times in milliseconds.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file could not be written
+     */
+    public void writeReport(@NonNull File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println("section,count,mean,p50,p95,p99,max");
+            for (int i = 0; i < names.size(); i++) {
+                out.println(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        names.get(i), counts[i], mean(i) / 1.0e6, percentile(i, 0.5) / 1.0e6,
+                        percentile(i, 0.95) / 1.0e6, percentile(i, 0.99) / 1.0e6, worst[i] / 1.0e6));
+            }
+        }
+    }
+
+    private double mean(int section) {
+        return counts[section] == 0 ? 0 : (double) totals[section] / counts[section];
+    }
+
+    private String[] summarise() {
+        String[] lines = new String[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            lines[i] = String.format(Locale.ROOT, "%s: p50 %.2f, p95 %.2f, p99 %.2f, max %.2f ms",
+                    names.get(i), percentile(i, 0.5) / 1.0e6, percentile(i, 0.95) / 1.0e6,
+                    percentile(i, 0.99) / 1.0e6, worst[i] / 1.0e6);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,62 @@
+package au.edu.sa.mbhs.studentrobotics.common.hardware;
+
+import androidx.annotation.NonNull;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.List;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.BunyipsOpMode;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.Dbg;
+
+/**
+ * Opt-in manual bulk caching for all Lynx hubs on a robot.
+ * <p>
+ * Once enabled, every hub is switched to {@link LynxModule.BulkCachingMode#MANUAL} when the OpMode starts, and the
+ * bulk cache of every hub is cleared once per active loop. All encoder, velocity and digital reads in a loop are then
+ * served from at most one bulk read per hub, including reads of the same port through different device objects
+ * (such as a drive motor that is also mapped as a deadwheel encoder).
+ * <p>
+ * Bulk caching only covers motor encoders, velocities, busy flags and digital/analog inputs. Reads such as the IMU,
+ * motor current and I2C devices will still make their own hub transactions.
+ * <p>
+ * Devices read outside of the OpMode loop will only see new values once per loop. Localizers run on their own thread
+ * through {@link au.edu.sa.mbhs.studentrobotics.common.localization.FixedRateLocalizer} should be given the hubs they
+ * read so the thread can clear their cache itself.
+ */
+public final class BulkReads {
+    private BulkReads() {
+    }
+
+    /**
+     * Enable manual bulk caching for all hubs in this hardware map, clearing the caches each active loop of the
+     * running {@link BunyipsOpMode}. Hubs are left in their current caching mode during initialisation, as the
+     * cache is only cleared during the active loop.
+     * This method will no-op if a BunyipsOpMode is not running.
+     *
+     * @param hardwareMap the hardware map to enable bulk caching for
+     */
+    public static void enable(@NonNull HardwareMap hardwareMap) {
+        List<LynxModule> hubs = hardwareMap.getAll(LynxModule.class);
+        BunyipsOpMode.ifRunning(opMode -> {
+            opMode.onActiveLoop(new Runnable() {
+                private boolean manual;
+
+                @Override
+                public void run() {
+                    if (!manual) {
+                        for (LynxModule hub : hubs) {
+                            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+                        }
+                        manual = true;
+                    }
+                    for (LynxModule hub : hubs) {
+                        hub.clearBulkCache();
+                    }
+                }
+            });
+            Dbg.logd(BulkReads.class, "Manual bulk caching enabled for % hub(s).", hubs.size());
+        });
+    }
+}
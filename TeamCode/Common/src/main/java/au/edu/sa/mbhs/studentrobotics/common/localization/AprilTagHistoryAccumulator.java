@@ -0,0 +1,86 @@
+package au.edu.sa.mbhs.studentrobotics.common.localization;
+
+import androidx.annotation.NonNull;
+
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.Time;
+import com.acmerobotics.roadrunner.Twist2dDual;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Pose3D;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+
+import java.util.List;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.vision.data.AprilTagData;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.vision.processors.AprilTag;
+
+/**
+ * Relocalizes off AprilTag robot pose estimates, compensating for the latency between frame capture and the
+ * detection being available.
+ * <p>
+ * Each new frame with a robot pose is applied through {@link #correct(Pose2d, long)} at the frame's acquisition time,
+ * so the motion accumulated while the frame was being processed is kept rather than the pose snapping back to where
+ * the robot was when the frame was captured. The camera pose must be set on the processor for robot poses to be
+ * available, such as through {@link AprilTag#setCameraPose}.
+ */
+public class AprilTagHistoryAccumulator extends PoseHistoryAccumulator {
+    private final AprilTag processor;
+    private long lastFrameNanos;
+
+    /**
+     * Create a new AprilTag relocalizing accumulator keeping the last {@link #DEFAULT_CAPACITY} poses.
+     *
+     * @param processor the AprilTag processor to read robot poses from
+     */
+    public AprilTagHistoryAccumulator(@NonNull AprilTag processor) {
+        this(processor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new AprilTag relocalizing accumulator.
+     *
+     * @param processor the AprilTag processor to read robot poses from
+     * @param capacity  number of poses to keep in the history, which should cover at least the worst-case latency of
+     *                  the processor at the loop rate
+     */
+    public AprilTagHistoryAccumulator(@NonNull AprilTag processor, int capacity) {
+        super(capacity);
+        this.processor = processor;
+    }
+
+    @Override
+    public void accumulate(@NonNull Twist2dDual<Time> twist) {
+        super.accumulate(twist);
+        if (!processor.isRunning())
+            return;
+
+        List<AprilTagData> data = processor.getData();
+        long frameNanos = 0;
+        double x = 0, y = 0, cos = 0, sin = 0;
+        int n = 0;
+        for (int i = 0; i < data.size(); i++) {
+            AprilTagData tag = data.get(i);
+            if (!tag.isInLibrary() || !tag.getRobotPose().isPresent()
+                    || tag.getFrameAcquisitionNanoTime() <= lastFrameNanos)
+                continue;
+            // All detections come from the same frame, so multiple tags are averaged into one measurement
+            frameNanos = tag.getFrameAcquisitionNanoTime();
+            Pose3D robotPose = tag.getRobotPose().get();
+            Position pos = robotPose.getPosition();
+            double heading = robotPose.getOrientation().getYaw(AngleUnit.RADIANS);
+            x += DistanceUnit.INCH.fromUnit(pos.unit, pos.x);
+            y += DistanceUnit.INCH.fromUnit(pos.unit, pos.y);
+            cos += Math.cos(heading);
+            sin += Math.sin(heading);
+            n++;
+        }
+        if (n == 0)
+            return;
+
+        lastFrameNanos = frameNanos;
+        Pose2d measured = new Pose2d(x / n, y / n, Math.atan2(sin, cos));
+        correct(measured, frameNanos);
+    }
+}
@@ -0,0 +1,271 @@
+package au.edu.sa.mbhs.studentrobotics.common.localization;
+
+import static au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Units.Seconds;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.DualNum;
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.Time;
+import com.acmerobotics.roadrunner.Twist2dDual;
+import com.acmerobotics.roadrunner.Vector2dDual;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.util.ElapsedTime;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+import java.util.Arrays;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.external.Mathf;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Measure;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.accumulators.Accumulator;
+
+/**
+ * Accumulator running an extended Kalman filter over the field-relative state [x, y, heading, vx, vy, omega].
+ * <p>
+ * Localizer twists are used as the process model, integrated along the same constant-curvature arc as
+ * {@link Pose2d#plus} uses for other accumulators, with process noise growing with the distance and angle travelled.
+ * The optional IMU yaw and any pose measurements passed to {@link #correct(Pose2d, double, double, double)}, such as
+ * those from AprilTags, are fused as measurements weighted by their variance. This replaces separately tuned IMU
+ * resets, scalar filters and heading low-pass stabilisation with a single filter whose confidence in each source is
+ * tracked by its covariance.
+ * <p>
+ * All filter matrices are preallocated, so an update only allocates the pose and velocity reported to the accumulator.
+ */
+public class EKFAccumulator extends Accumulator {
+    /**
+     * Variance (in^2) added to the position per square inch travelled according to the localizer.
+     */
+    public static double TRANSLATION_PROCESS_GAIN = 1.0e-3;
+    /**
+     * Variance (rad^2) added to the heading per square radian turned according to the localizer.
+     */
+    public static double HEADING_PROCESS_GAIN = 1.0e-3;
+    /**
+     * Variance (rad^2) added to the heading every update regardless of motion, to allow for slow drift.
+     */
+    public static double HEADING_DRIFT_VARIANCE = 1.0e-7;
+    /**
+     * Variance of the velocity states, which are taken directly from the localizer every update.
+     */
+    public static double VELOCITY_VARIANCE = 1.0;
+    /**
+     * Variance (rad^2) of the IMU yaw measurement.
+     */
+    public static double IMU_VARIANCE = 1.0e-4;
+
+    private static final int N = 6;
+
+    @Nullable
+    private final IMU imu;
+    private final double imuPeriodSeconds;
+    private final ElapsedTime imuTimer = new ElapsedTime();
+    private double imuOffset;
+    private boolean imuOffsetStale = true;
+    private boolean initialised;
+
+    // State and covariance, along with preallocated scratch space for the filter
+    private final double[] x = new double[N];
+    private final double[] p = new double[N * N];
+    private final double[] f = new double[N * N];
+    private final double[] tmp = new double[N * N];
+    private final double[] gain = new double[N];
+    private final double[] row = new double[N];
+
+    /**
+     * Create a new EKF accumulator fusing only localizer twists and pose measurements.
+     */
+    public EKFAccumulator() {
+        this(null, Seconds.of(0));
+    }
+
+    /**
+     * Create a new EKF accumulator additionally fusing IMU yaw.
+     *
+     * @param imu       the IMU to read yaw from, or null to not use an IMU
+     * @param imuPeriod the minimum time between IMU reads, as reading the IMU is slow
+     */
+    public EKFAccumulator(@Nullable IMU imu, @NonNull Measure<au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Time> imuPeriod) {
+        this.imu = imu;
+        imuPeriodSeconds = imuPeriod.in(Seconds);
+    }
+
+    @Override
+    public void accumulate(@NonNull Twist2dDual<Time> twist) {
+        // Seed the filter from the pose before this twist is applied, so the first twist is only counted once
+        if (!initialised) {
+            resetState(getPose());
+            initialised = true;
+        }
+
+        double vx = twist.line.x.get(1);
+        double vy = twist.line.y.get(1);
+        double omega = twist.angle.get(1);
+        predict(twist.line.x.get(0), twist.line.y.get(0), twist.angle.get(0), vx, vy, omega);
+
+        if (imu != null && imuTimer.seconds() >= imuPeriodSeconds) {
+            imuTimer.reset();
+            double yaw = imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+            if (imuOffsetStale) {
+                // The IMU only measures heading relative to where it was initialised, so align it to the current pose
+                imuOffset = x[2] - yaw;
+                imuOffsetStale = false;
+            } else {
+                observe(2, yaw + imuOffset, IMU_VARIANCE);
+            }
+        }
+
+        super.setPose(new Pose2d(x[0], x[1], x[2]));
+        // Maintain the velocity reported by this accumulator with a twist that has no displacement, as the pose has
+        // already been integrated by the filter
+        super.accumulate(new Twist2dDual<>(
+                new Vector2dDual<>(
+                        new DualNum<>(Arrays.asList(0.0, vx)),
+                        new DualNum<>(Arrays.asList(0.0, vy))
+                ),
+                new DualNum<>(Arrays.asList(0.0, omega))
+        ));
+    }
+
+    /**
+     * Fuse a measurement of the full robot pose, such as one from AprilTags.
+     *
+     * @param measured  the measured pose of the robot
+     * @param xVariance variance (in^2) of the x component of the measurement
+     * @param yVariance variance (in^2) of the y component of the measurement
+     * @param rVariance variance (rad^2) of the heading component of the measurement
+     */
+    public void correct(@NonNull Pose2d measured, double xVariance, double yVariance, double rVariance) {
+        if (!initialised) {
+            resetState(getPose());
+            initialised = true;
+        }
+        observe(0, measured.position.x, xVariance);
+        observe(1, measured.position.y, yVariance);
+        observe(2, measured.heading.toDouble(), rVariance);
+        super.setPose(new Pose2d(x[0], x[1], x[2]));
+    }
+
+    /**
+     * Set the pose of this accumulator, resetting the filter with full confidence in the new pose.
+     *
+     * @param newPose the new pose
+     */
+    @Override
+    public void setPose(@NonNull Pose2d newPose) {
+        super.setPose(newPose);
+        resetState(newPose);
+        initialised = true;
+    }
+
+    /**
+     * Get the variance of a state of the filter.
+     *
+     * @param state index of the state, in the order [x, y, heading, vx, vy, omega]
+     * @return the variance of that state
+     */
+    public double getVariance(int state) {
+        return p[state * N + state];
+    }
+
+    private void resetState(Pose2d pose) {
+        x[0] = pose.position.x;
+        x[1] = pose.position.y;
+        x[2] = pose.heading.toDouble();
+        x[3] = 0;
+        x[4] = 0;
+        x[5] = 0;
+        for (int i = 0; i < N * N; i++) {
+            p[i] = 0;
+        }
+        imuOffsetStale = true;
+    }
+
+    private void predict(double dx, double dy, double dr, double vx, double vy, double omega) {
+        double c = Math.cos(x[2]);
+        double s = Math.sin(x[2]);
+
+        // Robot-relative displacement along the arc of the twist, matching the exponential map of Pose2d.plus(Twist2d)
+        double a;
+        double b;
+        if (Math.abs(dr) < 1.0e-6) {
+            a = 1 - dr * dr / 6;
+            b = dr / 2;
+        } else {
+            a = Math.sin(dr) / dr;
+            b = (1 - Math.cos(dr)) / dr;
+        }
+        double lx = a * dx - b * dy;
+        double ly = b * dx + a * dy;
+
+        // Jacobian of the process model with respect to the state, where velocities are replaced by the localizer's
+        for (int i = 0; i < N * N; i++) {
+            f[i] = 0;
+        }
+        f[0] = 1;
+        f[N + 1] = 1;
+        f[2 * N + 2] = 1;
+        f[2] = -s * lx - c * ly;
+        f[N + 2] = c * lx - s * ly;
+        f[3 * N + 2] = -s * vx - c * vy;
+        f[4 * N + 2] = c * vx - s * vy;
+
+        x[0] += c * lx - s * ly;
+        x[1] += s * lx + c * ly;
+        x[2] = Mathf.inputModulus(x[2] + dr, -Math.PI, Math.PI);
+        x[3] = c * vx - s * vy;
+        x[4] = s * vx + c * vy;
+        x[5] = omega;
+
+        // P = F * P * F^T + Q
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += f[i * N + k] * p[k * N + j];
+                }
+                tmp[i * N + j] = sum;
+            }
+        }
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j < N; j++) {
+                double sum = 0;
+                for (int k = 0; k < N; k++) {
+                    sum += tmp[i * N + k] * f[j * N + k];
+                }
+                p[i * N + j] = sum;
+            }
+        }
+        double translationNoise = TRANSLATION_PROCESS_GAIN * (dx * dx + dy * dy);
+        p[0] += translationNoise;
+        p[N + 1] += translationNoise;
+        p[2 * N + 2] += HEADING_PROCESS_GAIN * dr * dr + HEADING_DRIFT_VARIANCE;
+        p[3 * N + 3] += VELOCITY_VARIANCE;
+        p[4 * N + 4] += VELOCITY_VARIANCE;
+        p[5 * N + 5] += VELOCITY_VARIANCE;
+    }
+
+    /**
+     * Kalman update with a direct measurement of a single state, where H selects that state.
+     */
+    private void observe(int state, double measurement, double variance) {
+        double innovation = measurement - x[state];
+        if (state == 2)
+            innovation = Mathf.inputModulus(innovation, -Math.PI, Math.PI);
+        double s = p[state * N + state] + variance;
+        if (s <= 0)
+            return;
+        for (int i = 0; i < N; i++) {
+            gain[i] = p[i * N + state] / s;
+            row[i] = p[state * N + i];
+        }
+        for (int i = 0; i < N; i++) {
+            x[i] += gain[i] * innovation;
+            for (int j = 0; j < N; j++) {
+                p[i * N + j] -= gain[i] * row[j];
+            }
+        }
+        x[2] = Mathf.inputModulus(x[2], -Math.PI, Math.PI);
+    }
+}
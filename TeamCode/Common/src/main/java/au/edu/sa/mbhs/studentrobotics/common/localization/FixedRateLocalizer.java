@@ -0,0 +1,137 @@
+package au.edu.sa.mbhs.studentrobotics.common.localization;
+
+import static au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Units.Seconds;
+
+import androidx.annotation.NonNull;
+
+import com.acmerobotics.roadrunner.DualNum;
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.Time;
+import com.acmerobotics.roadrunner.Twist2d;
+import com.acmerobotics.roadrunner.Twist2dDual;
+import com.acmerobotics.roadrunner.Vector2dDual;
+import com.qualcomm.hardware.lynx.LynxModule;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.Dbg;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Measure;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.Localizer;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.util.Geometry;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.util.Threads;
+
+/**
+ * Runs another {@link Localizer} at a fixed rate on a dedicated thread, independent of the OpMode loop.
+ * <p>
+ * The wrapped localizer is updated by the thread, which composes every twist it returns into a single robot-relative
+ * pose change. Each call to {@link #update()} from the OpMode loop then takes the pose change accumulated since the
+ * last call and returns it as one twist, so the accumulator applies the exact same motion regardless of how long the
+ * OpMode loop took. This keeps each integration step small when the loop is slowed down by telemetry or vision.
+ * <p>
+ * The thread is started on the first call to {@link #update()}, so it does not run during initialisation, and is
+ * stopped with other threads at the end of the OpMode.
+ * <p>
+ * The thread needs fresh encoder reads to be useful. If the hubs read by the wrapped localizer are in manual bulk
+ * caching mode (such as through {@link au.edu.sa.mbhs.studentrobotics.common.hardware.BulkReads}), pass them to the
+ * constructor so the thread clears their cache before every update. Otherwise the thread would only see new
+ * readings once per OpMode loop, when the loop clears the cache.
+ */
+public class FixedRateLocalizer implements Localizer {
+    private static final Delta ZERO = new Delta(Geometry.zeroPose(), 0, 0, 0);
+
+    private final Localizer localizer;
+    private final long periodNanos;
+    private final String threadName;
+    private final LynxModule[] hubs;
+    private final AtomicReference<Delta> delta = new AtomicReference<>(ZERO);
+    private boolean started;
+
+    /**
+     * Create a new fixed-rate localizer.
+     *
+     * @param localizer the localizer to update on a dedicated thread, which should not be updated anywhere else
+     * @param period    the time between updates of the wrapped localizer
+     * @param hubs      hubs read by the wrapped localizer, whose bulk cache will be cleared before every update
+     */
+    public FixedRateLocalizer(@NonNull Localizer localizer, @NonNull Measure<au.edu.sa.mbhs.studentrobotics.bunyipslib.external.units.Time> period, @NonNull LynxModule... hubs) {
+        this.localizer = localizer;
+        this.hubs = hubs;
+        periodNanos = (long) (period.in(Seconds) * 1.0e9);
+        threadName = getClass().getSimpleName() + "-" + localizer.getClass().getSimpleName();
+    }
+
+    /**
+     * @return the wrapped localizer
+     */
+    @NonNull
+    public Localizer getLocalizer() {
+        return localizer;
+    }
+
+    @NonNull
+    @Override
+    public Twist2dDual<Time> update() {
+        if (!started) {
+            started = true;
+            Threads.start(threadName, this::run);
+            Dbg.logd(getClass(), "Localizer thread started, updating every % ms.", periodNanos / 1.0e6);
+        }
+
+        Delta d = delta.getAndSet(ZERO);
+        Twist2d twist = d.pose.minus(Geometry.zeroPose());
+        return new Twist2dDual<>(
+                new Vector2dDual<>(
+                        new DualNum<>(Arrays.asList(twist.line.x, d.vx)),
+                        new DualNum<>(Arrays.asList(twist.line.y, d.vy))
+                ),
+                new DualNum<>(Arrays.asList(twist.angle, d.omega))
+        );
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            // Forces the next read to fetch fresh data, which also covers hubs cached manually by the OpMode loop
+            for (LynxModule hub : hubs) {
+                hub.clearBulkCache();
+            }
+            Twist2dDual<Time> twist = localizer.update();
+            Twist2d value = twist.value();
+            double vx = twist.line.x.get(1);
+            double vy = twist.line.y.get(1);
+            double omega = twist.angle.get(1);
+            // The OpMode loop may take the accumulated delta at any time, in which case we retry against the reset delta
+            Delta prev;
+            Delta updated;
+            do {
+                prev = delta.get();
+                updated = new Delta(prev.pose.plus(value), vx, vy, omega);
+            } while (!delta.compareAndSet(prev, updated));
+
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // Fell behind, such as from a slow hardware read, so don't try to catch up with a burst of updates
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    private static final class Delta {
+        final Pose2d pose;
+        final double vx;
+        final double vy;
+        final double omega;
+
+        Delta(Pose2d pose, double vx, double vy, double omega) {
+            this.pose = pose;
+            this.vx = vx;
+            this.vy = vy;
+            this.omega = omega;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package au.edu.sa.mbhs.studentrobotics.common.localization;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.Time;
+import com.acmerobotics.roadrunner.Twist2d;
+import com.acmerobotics.roadrunner.Twist2dDual;
+
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.external.Mathf;
+import au.edu.sa.mbhs.studentrobotics.bunyipslib.localization.accumulators.Accumulator;
+
+/**
+ * Accumulator that keeps a timestamped history of recent poses, allowing latency-compensated corrections.
+ * <p>
+ * Measurements such as AprilTag detections describe where the robot was when the frame was captured, which is often
+ * 50-100 ms before the measurement is available. Applying them as the current pose throws away the motion since capture
+ * and causes the pose to snap backwards while moving. {@link #correct(Pose2d, long)} instead rewinds to the capture
+ * time, applies the measurement there, and replays the motion accumulated since onto the corrected pose.
+ */
+public class PoseHistoryAccumulator extends Accumulator {
+    /**
+     * Default number of poses to keep in the history.
+     */
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private final long[] times;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private int head;
+    private int size;
+
+    /**
+     * Create a new accumulator keeping the last {@link #DEFAULT_CAPACITY} poses.
+     */
+    public PoseHistoryAccumulator() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new accumulator.
+     *
+     * @param capacity number of poses to keep in the history, which should cover at least the worst-case latency of
+     *                 measurements at the loop rate
+     */
+    public PoseHistoryAccumulator(int capacity) {
+        times = new long[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+    }
+
+    @Override
+    public void accumulate(@NonNull Twist2dDual<Time> twist) {
+        super.accumulate(twist);
+        record(System.nanoTime(), getPose());
+    }
+
+    /**
+     * Set the pose of this accumulator, clearing the pose history as previous poses no longer relate to this pose.
+     *
+     * @param newPose the new pose
+     */
+    @Override
+    public void setPose(@NonNull Pose2d newPose) {
+        super.setPose(newPose);
+        size = 0;
+    }
+
+    /**
+     * Get the pose of the robot at a point in time, linearly interpolating between recorded poses.
+     *
+     * @param nanos timestamp from {@link System#nanoTime()}
+     * @return the pose at that time, clamped to the oldest and newest recorded poses, or null if no poses are recorded
+     */
+    @Nullable
+    public Pose2d getPoseAt(long nanos) {
+        if (size == 0)
+            return null;
+        int after = index(size - 1);
+        if (times[after] <= nanos)
+            return pose(after);
+        // Walk back from the newest record until we reach one taken at or before the timestamp
+        for (int i = size - 2; i >= 0; i--) {
+            int idx = index(i);
+            if (times[idx] <= nanos) {
+                double u = (double) (nanos - times[idx]) / (times[after] - times[idx]);
+                return new Pose2d(
+                        xs[idx] + u * (xs[after] - xs[idx]),
+                        ys[idx] + u * (ys[after] - ys[idx]),
+                        headings[idx] + u * Mathf.inputModulus(headings[after] - headings[idx], -Math.PI, Math.PI)
+                );
+            }
+            after = idx;
+        }
+        return pose(after);
+    }
+
+    /**
+     * Correct the pose with a measurement of where the robot was at a point in time.
+     * The motion accumulated since that time is replayed onto the measurement to form the new pose, and the recorded
+     * history since that time is rewritten to match.
+     *
+     * @param measured     the measured pose of the robot
+     * @param captureNanos timestamp from {@link System#nanoTime()} at which the measurement was taken
+     */
+    public void correct(@NonNull Pose2d measured, long captureNanos) {
+        Pose2d atCapture = getPoseAt(captureNanos);
+        if (atCapture == null) {
+            super.setPose(measured);
+            return;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            int idx = index(i);
+            if (times[idx] < captureNanos)
+                break;
+            Pose2d replayed = measured.plus(pose(idx).minus(atCapture));
+            xs[idx] = replayed.position.x;
+            ys[idx] = replayed.position.y;
+            headings[idx] = replayed.heading.toDouble();
+        }
+        Twist2d sinceCapture = getPose().minus(atCapture);
+        super.setPose(measured.plus(sinceCapture));
+    }
+
+    private void record(long nanos, Pose2d pose) {
+        int idx = index(size < times.length ? size : 0);
+        if (size < times.length) {
+            size++;
+        } else {
+            // Overwrite the oldest pose
+            head = (head + 1) % times.length;
+        }
+        times[idx] = nanos;
+        xs[idx] = pose.position.x;
+        ys[idx] = pose.position.y;
+        headings[idx] = pose.heading.toDouble();
+    }
+
+    private int index(int i) {
+        return (head + i) % times.length;
+    }
+
+    private Pose2d pose(int idx) {
+        return new Pose2d(xs[idx], ys[idx], headings[idx]);
+    }
+}
@@ -28,6 +28,8 @@ import au.edu.sa.mbhs.studentrobotics.bunyipslib.subsystems.DualServos;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.subsystems.HoldableActuator;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.subsystems.Switch;
 import au.edu.sa.mbhs.studentrobotics.bunyipslib.subsystems.drive.MecanumDrive;
+import au.edu.sa.mbhs.studentrobotics.common.diagnostics.LoopProfiler;
+import au.edu.sa.mbhs.studentrobotics.common.hardware.BulkReads;
 
 /**
  * FTC 22407 INTO THE DEEP 2024-2025 robot configuration and subsystems
@@ -53,6 +55,10 @@ public class Vance extends RobotConfig {
      * Vance hardware
      */
     public final Hardware hw = new Hardware();
+    /**
+     * Loop timings, written to a CSV report when the OpMode stops
+     */
+    public LoopProfiler profiler;
 
     /**
      * Mecanum drive
@@ -85,6 +91,10 @@ public class Vance extends RobotConfig {
 
     @Override
     protected void onRuntime() {
+        profiler = new LoopProfiler();
+        // Drive motors are also mapped as deadwheels, bulk reads ensure both are served by one read per loop
+        BulkReads.enable(hardwareMap);
+
         // giulio messed with the robot so i have to change all the directions
         hw.fl = getHardware("fl", DcMotorEx.class, (d) -> {
 //            d.setDirection(DcMotorSimple.Direction.REVERSE);
@@ -115,7 +125,15 @@ public class Vance extends RobotConfig {
             ElevatorFeedforward ff = new ElevatorFeedforward(0.0, va_kG, 0.0, 0.0, () -> 0, () -> 0);
             CompositeController c = pid.compose(ff, Double::sum);
             d.setRunToPositionController(c);
-            BunyipsOpMode.ifRunning(o -> o.onActiveLoop(() -> c.setCoefficients(va_kP, 0.0, 0.0, 0.0, 0.0, va_kG, 0.0, 0.0)));
+            // Only push coefficients to the controller when they have been changed through the dashboard
+            double[] last = {va_kP, va_kG};
+            BunyipsOpMode.ifRunning(o -> o.onActiveLoop(profiler.wrap("Lift coefficients", () -> {
+                if (va_kP == last[0] && va_kG == last[1])
+                    return;
+                last[0] = va_kP;
+                last[1] = va_kG;
+                c.setCoefficients(va_kP, 0.0, 0.0, 0.0, 0.0, va_kG, 0.0, 0.0);
+            })));
         }); // giulio is now in robot 22407 not 15215
         hw.bottomLimit = getHardware("bottom", TouchSensor.class);
         hw.horizontalLimit = getHardware("hori", TouchSensor.class);